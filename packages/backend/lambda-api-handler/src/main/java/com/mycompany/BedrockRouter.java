@@ -0,0 +1,360 @@
+package com.mycompany.handler.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads Bedrock calls over several (model, region) targets.
+ *
+ * Each target keeps a latency and error EWMA, and is ranked by latency weighted
+ * by its error rate. A request goes to the best healthy target; if it hasn't answered by that target's p95 latency, a hedged
+ * copy is sent to the next best healthy one and whichever loses is cancelled.
+ * Short prompts prefer targets marked as lightweight (cheaper/faster models);
+ * long prompts only fall back to them after the full targets.
+ */
+public class BedrockRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BedrockRouter.class);
+
+    private static final double EWMA_ALPHA = 0.2;
+    private static final double MAX_ERROR_RATE = 0.5;
+    private static final long UNHEALTHY_COOLDOWN_MS = 30_000;
+    private static final int SHORT_PROMPT_CHARS = 500;
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final long MIN_HEDGE_DELAY_MS = 50;
+    private static final long DEFAULT_HEDGE_DELAY_MS = 2_000;
+    // A failed call counts as at least this slow, so fast-failing targets don't look fast
+    private static final long FAILURE_LATENCY_MS = 2_000;
+    // Score = latency * (1 + ERROR_WEIGHT * errorEwma)
+    private static final double ERROR_WEIGHT = 4.0;
+    // Stay under API Gateway's 29 s integration limit
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(25);
+    // Hedges add load, so cap them to a fraction of all requests
+    private static final double MAX_HEDGE_RATIO = 0.1;
+
+    private final List<Target> targets;
+    private final Duration requestTimeout;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong hedgeCount = new AtomicLong();
+
+    public BedrockRouter(List<Target> targets) {
+        this(targets, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    public BedrockRouter(List<Target> targets, Duration requestTimeout) {
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("At least one Bedrock target is required");
+        }
+        this.targets = List.copyOf(targets);
+        this.requestTimeout = requestTimeout;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "bedrock-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Builds targets from "region=modelId" lists, e.g.
+     * {@code us-east-1=anthropic.claude-3-5-sonnet-20240620-v1:0,us-west-2=anthropic.claude-3-5-sonnet-20240620-v1:0}.
+     * Fast targets are only preferred for short prompts.
+     */
+    public static BedrockRouter fromConfig(String targetList, String fastTargetList) {
+        Map<String, BedrockRuntimeAsyncClient> clients = new HashMap<>();
+        List<Target> targets = new ArrayList<>();
+        addTargets(targets, clients, targetList, false);
+        addTargets(targets, clients, fastTargetList, true);
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("No Bedrock targets configured: set BEDROCK_TARGETS or BEDROCK_MODEL_ID");
+        }
+        logger.info("Bedrock router targets: {}", targets.stream().map(Target::getName).collect(Collectors.toList()));
+        return new BedrockRouter(targets);
+    }
+
+    private static void addTargets(List<Target> targets, Map<String, BedrockRuntimeAsyncClient> clients,
+                                   String targetList, boolean lightweight) {
+        if (targetList == null || targetList.isBlank()) {
+            return;
+        }
+        for (String entry : targetList.split(",")) {
+            String[] parts = entry.trim().split("=", 2);
+            if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                throw new IllegalArgumentException("Expected region=modelId but got: " + entry);
+            }
+            String region = parts[0].trim();
+            String modelId = parts[1].trim();
+            BedrockRuntimeAsyncClient client = clients.computeIfAbsent(region, key ->
+                    BedrockRuntimeAsyncClient.builder().region(Region.of(key)).build());
+            targets.add(Target.bedrock(client, region, modelId, lightweight));
+        }
+    }
+
+    public String invokeModel(String prompt) {
+        List<Target> ranked = rank(prompt);
+        Target primary = ranked.get(0);
+        Target backup = ranked.size() > 1 ? ranked.get(1) : null;
+        requestCount.incrementAndGet();
+
+        Race race = new Race(prompt);
+        AtomicBoolean backupLaunched = new AtomicBoolean(backup == null);
+
+        Runnable launchBackup = () -> {
+            if (backupLaunched.compareAndSet(false, true) && !race.settled.get()) {
+                launch(backup, race, null);
+            }
+        };
+
+        launch(primary, race, launchBackup);
+
+        // Only hedge onto a target we'd actually trust; failover still tries it
+        if (backup != null && backup.isHealthy(System.currentTimeMillis())) {
+            long delay = primary.hedgeDelayMillis();
+            ScheduledFuture<?> hedge = scheduler.schedule(() -> {
+                if (!race.settled.get() && !backupLaunched.get() && withinHedgeBudget()) {
+                    hedgeCount.incrementAndGet();
+                    logger.info("Hedging {} with {} after {} ms", primary.getName(), backup.getName(), delay);
+                    launchBackup.run();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+            race.result.whenComplete((text, error) -> hedge.cancel(false));
+        }
+
+        // Bound the whole race, e.g. a single target or an exhausted hedge budget on a hung call
+        ScheduledFuture<?> deadline = scheduler.schedule(() -> {
+            if (race.settled.compareAndSet(false, true)) {
+                race.attempts.forEach(attempt -> attempt.cancel(true));
+                race.result.completeExceptionally(new TimeoutException(
+                        "No Bedrock response within " + requestTimeout.toMillis() + " ms"));
+            }
+        }, requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        race.result.whenComplete((text, error) -> deadline.cancel(false));
+
+        try {
+            return race.result.join();
+        } catch (CompletionException e) {
+            logger.error("Error invoking Bedrock model", e.getCause());
+            throw new RuntimeException("Failed to invoke Bedrock", e.getCause());
+        }
+    }
+
+    private void launch(Target target, Race race, Runnable onFailure) {
+        race.outstanding.incrementAndGet();
+        CompletableFuture<String> attempt = target.call(race.prompt);
+        race.attempts.add(attempt);
+        // A winner may have settled the race before this attempt was registered
+        if (race.settled.get()) {
+            attempt.cancel(true);
+        }
+        attempt.whenComplete((text, error) -> {
+            int remaining = race.outstanding.decrementAndGet();
+            if (error == null) {
+                if (race.settled.compareAndSet(false, true)) {
+                    // Cancel the loser before the caller sees the answer
+                    race.attempts.stream()
+                            .filter(other -> other != attempt)
+                            .forEach(other -> other.cancel(true));
+                    race.result.complete(text);
+                }
+            } else if (!(error instanceof CancellationException)) {
+                logger.warn("Bedrock target {} failed", target.getName(), error);
+                if (onFailure != null) {
+                    // Fail over straight away instead of waiting for the hedge delay
+                    onFailure.run();
+                    remaining = race.outstanding.get();
+                }
+                if (remaining == 0 && race.settled.compareAndSet(false, true)) {
+                    race.result.completeExceptionally(error);
+                }
+            }
+        });
+    }
+
+    private boolean withinHedgeBudget() {
+        return hedgeCount.get() < Math.max(1, (long) (requestCount.get() * MAX_HEDGE_RATIO));
+    }
+
+    /**
+     * Targets in the order a request with this prompt would try them.
+     */
+    public List<Target> rank(String prompt) {
+        boolean shortPrompt = prompt != null && prompt.length() <= SHORT_PROMPT_CHARS;
+        long now = System.currentTimeMillis();
+
+        // Short prompts try lightweight models first, long prompts only fall back to them
+        Comparator<Target> order = Comparator.comparing((Target t) -> !t.isHealthy(now))
+                .thenComparing(t -> t.isLightweight() != shortPrompt)
+                .thenComparingDouble(Target::score);
+
+        return targets.stream().sorted(order).collect(Collectors.toList());
+    }
+
+    /**
+     * State shared by the attempts of a single request.
+     */
+    private static final class Race {
+        private final String prompt;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>();
+        private final AtomicInteger outstanding = new AtomicInteger();
+        // Set by whichever attempt decides the result, before the result completes
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Race(String prompt) {
+            this.prompt = prompt;
+        }
+    }
+
+    /**
+     * One (model, region) pair plus the latency/error statistics used to rank it.
+     */
+    public static class Target {
+
+        private static final int LATENCY_WINDOW = 64;
+        private static final int MIN_SAMPLES_FOR_PERCENTILE = 10;
+
+        private final String name;
+        private final boolean lightweight;
+        private final Function<String, CompletableFuture<String>> invoker;
+
+        private final long[] latencies = new long[LATENCY_WINDOW];
+        private int samples;
+        private double latencyEwma;
+        private double errorEwma;
+        private long lastFailureMillis;
+
+        public Target(String name, boolean lightweight, Function<String, CompletableFuture<String>> invoker) {
+            this.name = name;
+            this.lightweight = lightweight;
+            this.invoker = invoker;
+        }
+
+        public static Target bedrock(BedrockRuntimeAsyncClient client, String region, String modelId, boolean lightweight) {
+            BedrockService service = new BedrockService(client, modelId);
+            return new Target(region + "/" + modelId, lightweight, service::invokeModel);
+        }
+
+        /**
+         * Invokes the target and feeds the outcome into its statistics.
+         */
+        public CompletableFuture<String> call(String prompt) {
+            long start = System.nanoTime();
+            CompletableFuture<String> future;
+            try {
+                future = invoker.apply(prompt);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<String> attempt = future;
+            // Stats are recorded before callers see the result
+            CompletableFuture<String> recorded = attempt.whenComplete((text, error) -> {
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (error == null) {
+                    recordSuccess(elapsedMillis);
+                } else if (error instanceof CancellationException) {
+                    recordCancelled(elapsedMillis);
+                } else {
+                    recordFailure(elapsedMillis);
+                }
+            });
+            recorded.whenComplete((text, error) -> {
+                if (recorded.isCancelled()) {
+                    attempt.cancel(true);
+                }
+            });
+            return recorded;
+        }
+
+        private synchronized void recordSuccess(long elapsedMillis) {
+            recordLatency(elapsedMillis);
+            errorEwma = (1 - EWMA_ALPHA) * errorEwma;
+        }
+
+        private synchronized void recordFailure(long elapsedMillis) {
+            errorEwma = (1 - EWMA_ALPHA) * errorEwma + EWMA_ALPHA;
+            lastFailureMillis = System.currentTimeMillis();
+            // Not a latency sample for the hedge percentile, but it must not look fast either
+            long penalty = Math.max(elapsedMillis, FAILURE_LATENCY_MS);
+            latencyEwma = samples == 0
+                    ? Math.max(latencyEwma, penalty)
+                    : (1 - EWMA_ALPHA) * latencyEwma + EWMA_ALPHA * penalty;
+        }
+
+        /**
+         * A cancelled call only tells us it took at least {@code elapsedMillis}, so it
+         * may raise the estimate but never lower it. Otherwise a backup cancelled a few
+         * ms after the hedge would look fast and jump to the front of the ranking.
+         * With no real samples yet there is no estimate to raise.
+         */
+        private synchronized void recordCancelled(long elapsedMillis) {
+            if (samples > 0 && elapsedMillis > latencyEwma) {
+                recordLatency(elapsedMillis);
+            }
+        }
+
+        private synchronized void recordLatency(long elapsedMillis) {
+            latencies[samples % LATENCY_WINDOW] = elapsedMillis;
+            latencyEwma = samples == 0 ? elapsedMillis : (1 - EWMA_ALPHA) * latencyEwma + EWMA_ALPHA * elapsedMillis;
+            samples++;
+        }
+
+        synchronized long hedgeDelayMillis() {
+            if (samples < MIN_SAMPLES_FOR_PERCENTILE) {
+                return DEFAULT_HEDGE_DELAY_MS;
+            }
+            long[] window = Arrays.copyOf(latencies, Math.min(samples, LATENCY_WINDOW));
+            Arrays.sort(window);
+            long percentile = window[(int) Math.ceil(HEDGE_PERCENTILE * window.length) - 1];
+            return Math.max(MIN_HEDGE_DELAY_MS, percentile);
+        }
+
+        synchronized boolean isHealthy(long nowMillis) {
+            // Give an unhealthy target another chance once the cooldown has passed
+            return errorEwma < MAX_ERROR_RATE || nowMillis - lastFailureMillis > UNHEALTHY_COOLDOWN_MS;
+        }
+
+        synchronized double score() {
+            return latencyEwma * (1 + ERROR_WEIGHT * errorEwma);
+        }
+
+        public synchronized double getLatencyEwma() {
+            return latencyEwma;
+        }
+
+        public synchronized double getErrorEwma() {
+            return errorEwma;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isLightweight() {
+            return lightweight;
+        }
+    }
+}
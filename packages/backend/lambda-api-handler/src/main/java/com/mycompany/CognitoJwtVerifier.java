@@ -0,0 +1,323 @@
+package com.mycompany.handler.service;
+
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Verifies Cognito ID and access tokens inside the Lambda, so a Function URL
+ * can be used without the API Gateway Cognito authorizer in front of it.
+ *
+ * The JWKS is fetched once per container, turned into {@link PublicKey}s up front
+ * and refreshed asynchronously once it is older than the refresh interval. Tokens
+ * that already passed verification are cached by their SHA-256 hash until they expire.
+ */
+public class CognitoJwtVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(CognitoJwtVerifier.class);
+    private static final Gson gson = new Gson();
+    private static final Base64.Decoder base64Url = Base64.getUrlDecoder();
+
+    private static final int MAX_CACHED_TOKENS = 1024;
+    // Unknown "kid" may mean Cognito rotated its keys, but don't let bad tokens hammer the JWKS endpoint
+    private static final Duration MIN_ON_DEMAND_REFRESH = Duration.ofSeconds(30);
+
+    private final String issuer;
+    private final String clientId;
+    private final Supplier<String> jwksSource;
+    private final Clock clock;
+    private final Duration refreshInterval;
+    private final AtomicBoolean refreshInFlight = new AtomicBoolean();
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    private volatile Map<String, PublicKey> keysById = Collections.emptyMap();
+    // Set before each fetch, so a failing JWKS endpoint still rate-limits refreshes
+    private volatile Instant lastRefreshAttempt = Instant.EPOCH;
+
+    public CognitoJwtVerifier(String issuer, String clientId, Supplier<String> jwksSource,
+                              Duration refreshInterval, Clock clock) {
+        this.issuer = Objects.requireNonNull(issuer, "issuer");
+        this.clientId = Objects.requireNonNull(clientId, "clientId");
+        this.jwksSource = jwksSource;
+        this.clock = clock;
+        this.refreshInterval = refreshInterval;
+
+        // Load keys during init so the first request doesn't pay for the fetch. If the
+        // JWKS endpoint is down, don't fail the cold start: the first token retries it.
+        refreshQuietly();
+        if (keysById.isEmpty()) {
+            this.lastRefreshAttempt = Instant.EPOCH;
+        }
+    }
+
+    public static CognitoJwtVerifier forJwksUrl(String issuer, String clientId, String jwksUrl) {
+        Objects.requireNonNull(jwksUrl, "jwksUrl");
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(jwksUrl))
+                .timeout(Duration.ofSeconds(3))
+                .GET()
+                .build();
+
+        Supplier<String> jwksSource = () -> {
+            try {
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("JWKS endpoint returned " + response.statusCode());
+                }
+                return response.body();
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to fetch JWKS from " + jwksUrl, e);
+            }
+        };
+
+        return new CognitoJwtVerifier(issuer, clientId, jwksSource, Duration.ofMinutes(15), Clock.systemUTC());
+    }
+
+    /**
+     * Returns the token's claims, or throws {@link InvalidTokenException} if the
+     * signature, issuer, audience, token use or expiry doesn't check out.
+     */
+    public Map<String, Object> verify(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new InvalidTokenException("Missing token");
+        }
+
+        try {
+            return verifyToken(token);
+        } catch (ClassCastException | IllegalArgumentException | DateTimeException e) {
+            // Claims or header with unexpected types, bad base64 and the like
+            throw new InvalidTokenException("Malformed token");
+        }
+    }
+
+    private Map<String, Object> verifyToken(String token) {
+        Instant now = clock.instant();
+        refreshIfStale(now);
+        String tokenHash = sha256(token);
+
+        VerifiedToken cached = verifiedTokens.get(tokenHash);
+        if (cached != null) {
+            if (now.isBefore(cached.expiresAt)) {
+                return cached.claims;
+            }
+            verifiedTokens.remove(tokenHash);
+            throw new InvalidTokenException("Token expired");
+        }
+
+        String[] parts = token.split("\\.");
+        if (parts.length != 3) {
+            throw new InvalidTokenException("Malformed token");
+        }
+
+        Map<String, Object> header = decodeJson(parts[0]);
+        if (!"RS256".equals(header.get("alg"))) {
+            throw new InvalidTokenException("Unsupported algorithm: " + header.get("alg"));
+        }
+
+        Object kid = header.get("kid");
+        if (!(kid instanceof String)) {
+            throw new InvalidTokenException("Missing kid");
+        }
+        PublicKey key = findKey((String) kid);
+        if (!signatureMatches(key, parts)) {
+            throw new InvalidTokenException("Invalid signature");
+        }
+
+        Map<String, Object> claims = Collections.unmodifiableMap(decodeJson(parts[1]));
+        Instant expiresAt = validateClaims(claims, now);
+
+        cacheVerifiedToken(tokenHash, new VerifiedToken(claims, expiresAt), now);
+        return claims;
+    }
+
+    public void refreshKeys() {
+        this.lastRefreshAttempt = clock.instant();
+        String jwks = jwksSource.get();
+        Map<String, PublicKey> parsed = new HashMap<>();
+        try {
+            Map<String, Object> document = gson.fromJson(jwks, Map.class);
+            List<Map<String, Object>> keys = (List<Map<String, Object>>) document.get("keys");
+            if (keys == null) {
+                throw new IllegalStateException("JWKS document has no keys");
+            }
+
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+            for (Map<String, Object> jwk : keys) {
+                if (!"RSA".equals(jwk.get("kty"))) {
+                    continue;
+                }
+                BigInteger modulus = new BigInteger(1, base64Url.decode((String) jwk.get("n")));
+                BigInteger exponent = new BigInteger(1, base64Url.decode((String) jwk.get("e")));
+                parsed.put((String) jwk.get("kid"), keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to parse JWKS", e);
+        }
+
+        this.keysById = Collections.unmodifiableMap(parsed);
+        logger.info("Loaded {} signing keys for issuer {}", parsed.size(), issuer);
+    }
+
+    /**
+     * No timer here: Lambda freezes the container between invocations, so a
+     * scheduled task would fire late and in bursts. Instead the first request
+     * after the keys go stale starts a single async refresh.
+     */
+    private void refreshIfStale(Instant now) {
+        if (refreshInterval.isZero() || refreshInterval.isNegative()
+                || !now.isAfter(lastRefreshAttempt.plus(refreshInterval))) {
+            return;
+        }
+        if (refreshInFlight.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    refreshQuietly();
+                } finally {
+                    refreshInFlight.set(false);
+                }
+            });
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refreshKeys();
+        } catch (Exception e) {
+            // Keep serving with the keys we already have
+            logger.warn("JWKS refresh failed", e);
+        }
+    }
+
+    private PublicKey findKey(String kid) {
+        PublicKey key = keysById.get(kid);
+        if (key == null && clock.instant().isAfter(lastRefreshAttempt.plus(MIN_ON_DEMAND_REFRESH))) {
+            logger.info("Unknown key id {}, refreshing JWKS", kid);
+            refreshQuietly();
+            key = keysById.get(kid);
+        }
+        if (key == null) {
+            throw new InvalidTokenException("Unknown key id: " + kid);
+        }
+        return key;
+    }
+
+    private Instant validateClaims(Map<String, Object> claims, Instant now) {
+        if (!issuer.equals(claims.get("iss"))) {
+            throw new InvalidTokenException("Unexpected issuer: " + claims.get("iss"));
+        }
+
+        Object exp = claims.get("exp");
+        if (!(exp instanceof Number)) {
+            throw new InvalidTokenException("Missing exp claim");
+        }
+        Instant expiresAt = Instant.ofEpochSecond(((Number) exp).longValue());
+        if (!now.isBefore(expiresAt)) {
+            throw new InvalidTokenException("Token expired");
+        }
+
+        // ID tokens carry the app client in "aud", access tokens in "client_id"
+        Object tokenUse = claims.get("token_use");
+        if ("id".equals(tokenUse)) {
+            if (!clientId.equals(claims.get("aud"))) {
+                throw new InvalidTokenException("Unexpected audience: " + claims.get("aud"));
+            }
+        } else if ("access".equals(tokenUse)) {
+            if (!clientId.equals(claims.get("client_id"))) {
+                throw new InvalidTokenException("Unexpected client_id: " + claims.get("client_id"));
+            }
+        } else {
+            throw new InvalidTokenException("Unexpected token_use: " + tokenUse);
+        }
+
+        return expiresAt;
+    }
+
+    private void cacheVerifiedToken(String tokenHash, VerifiedToken verified, Instant now) {
+        if (verifiedTokens.size() >= MAX_CACHED_TOKENS) {
+            verifiedTokens.values().removeIf(entry -> !now.isBefore(entry.expiresAt));
+            if (verifiedTokens.size() >= MAX_CACHED_TOKENS) {
+                verifiedTokens.clear();
+            }
+        }
+        verifiedTokens.put(tokenHash, verified);
+    }
+
+    private static boolean signatureMatches(PublicKey key, String[] parts) {
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initVerify(key);
+            signature.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+            return signature.verify(base64Url.decode(parts[2]));
+        } catch (Exception e) {
+            throw new InvalidTokenException("Invalid signature");
+        }
+    }
+
+    private static Map<String, Object> decodeJson(String part) {
+        try {
+            String json = new String(base64Url.decode(part), StandardCharsets.UTF_8);
+            Map<String, Object> decoded = gson.fromJson(json, Map.class);
+            if (decoded == null) {
+                throw new InvalidTokenException("Malformed token");
+            }
+            return decoded;
+        } catch (InvalidTokenException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InvalidTokenException("Malformed token");
+        }
+    }
+
+    private static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class VerifiedToken {
+        private final Map<String, Object> claims;
+        private final Instant expiresAt;
+
+        private VerifiedToken(Map<String, Object> claims, Instant expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static class InvalidTokenException extends RuntimeException {
+        public InvalidTokenException(String message) {
+            super(message);
+        }
+    }
+}
@@ -4,14 +4,19 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.mycompany.handler.service.BedrockRouter;
+import com.mycompany.handler.service.CognitoJwtVerifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
 import software.amazon.awssdk.services.rdsdata.RdsDataClient;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,9 +32,14 @@ public class ApiHandler implements RequestHandler<APIGatewayProxyRequestEvent, A
     private final Region region;
     
     // AWS Clients (initialized once per container)
-    private final BedrockRuntimeClient bedrockClient;
     private final RdsDataClient rdsClient;
     
+    // Routes across the configured (model, region) targets, hedging slow calls
+    private final BedrockRouter bedrockRouter;
+    
+    // Only set when deployed behind a Function URL, where there is no API Gateway authorizer
+    private final CognitoJwtVerifier jwtVerifier;
+    
     public ApiHandler() {
         // Read environment variables
         this.dbClusterArn = System.getenv("DB_CLUSTER_ARN");
@@ -38,17 +48,34 @@ public class ApiHandler implements RequestHandler<APIGatewayProxyRequestEvent, A
         this.region = Region.of(System.getenv("AWS_REGION"));
         
         // Initialize AWS clients (reused across invocations)
-        this.bedrockClient = BedrockRuntimeClient.builder()
-                .region(region)
-                .build();
+        // BEDROCK_TARGETS / BEDROCK_FAST_TARGETS are "region=modelId" lists; default to the single configured model
+        String bedrockTargets = System.getenv("BEDROCK_TARGETS");
+        if (bedrockTargets == null && bedrockModelId != null) {
+            bedrockTargets = region.id() + "=" + bedrockModelId;
+        }
+        this.bedrockRouter = BedrockRouter.fromConfig(bedrockTargets, System.getenv("BEDROCK_FAST_TARGETS"));
                 
         this.rdsClient = RdsDataClient.builder()
                 .region(region)
                 .build();
         
+        String cognitoIssuer = System.getenv("COGNITO_ISSUER");
+        this.jwtVerifier = cognitoIssuer == null ? null : CognitoJwtVerifier.forJwksUrl(
+                cognitoIssuer,
+                requireEnv("COGNITO_CLIENT_ID"),
+                requireEnv("COGNITO_JWKS_URL"));
+        
         logger.info("ApiHandler initialized with region: {}", region);
     }
 
+    private static String requireEnv(String name) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalStateException(name + " must be set when COGNITO_ISSUER is set");
+        }
+        return value;
+    }
+
     @Override
     public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent input, Context context) {
         logger.info("Received request: {} {}", input.getHttpMethod(), input.getPath());
@@ -75,15 +102,62 @@ public class ApiHandler implements RequestHandler<APIGatewayProxyRequestEvent, A
         }
     }
     
+    /**
+     * Entry point for the Function URL deployment. Verifies the Cognito token itself
+     * and then routes the request the same way as the API Gateway entry point.
+     */
+    public APIGatewayV2HTTPResponse handleFunctionUrlRequest(APIGatewayV2HTTPEvent input, Context context) {
+        if (jwtVerifier == null) {
+            logger.error("Function URL request received but COGNITO_ISSUER is not configured");
+            return toFunctionUrlResponse(createResponse(500, Map.of("error", "Internal server error")));
+        }
+        
+        long start = System.nanoTime();
+        try {
+            jwtVerifier.verify(extractBearerToken(input.getHeaders()));
+        } catch (CognitoJwtVerifier.InvalidTokenException e) {
+            logger.info("Rejected token: {}", e.getMessage());
+            return toFunctionUrlResponse(createResponse(401, Map.of("error", "Unauthorized")));
+        }
+        logger.info("Token verified in {} us", (System.nanoTime() - start) / 1_000);
+        
+        APIGatewayProxyRequestEvent request = new APIGatewayProxyRequestEvent();
+        request.setPath(input.getRawPath());
+        request.setHttpMethod(input.getRequestContext().getHttp().getMethod());
+        request.setHeaders(input.getHeaders());
+        request.setQueryStringParameters(input.getQueryStringParameters());
+        request.setBody(input.getIsBase64Encoded() && input.getBody() != null
+                ? new String(Base64.getDecoder().decode(input.getBody()), StandardCharsets.UTF_8)
+                : input.getBody());
+        
+        return toFunctionUrlResponse(handleRequest(request, context));
+    }
+    
+    private String extractBearerToken(Map<String, String> headers) {
+        // Function URLs lower-case header names
+        String authorization = headers == null ? null : headers.get("authorization");
+        if (authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return authorization.substring(7).trim();
+        }
+        return authorization;
+    }
+    
+    private APIGatewayV2HTTPResponse toFunctionUrlResponse(APIGatewayProxyResponseEvent response) {
+        return APIGatewayV2HTTPResponse.builder()
+                .withStatusCode(response.getStatusCode())
+                .withHeaders(response.getHeaders())
+                .withBody(response.getBody())
+                .build();
+    }
+    
     private APIGatewayProxyResponseEvent handleBedrockRequest(APIGatewayProxyRequestEvent input) {
         try {
             // Parse request body
             Map<String, Object> requestBody = gson.fromJson(input.getBody(), Map.class);
             String prompt = (String) requestBody.get("prompt");
             
-            // Call Bedrock service
-            BedrockService bedrockService = new BedrockService(bedrockClient, bedrockModelId);
-            String result = bedrockService.invokeModel(prompt);
+            // Call Bedrock through the router
+            String result = bedrockRouter.invokeModel(prompt);
             
             return createResponse(200, Map.of("result", result));
             
@@ -0,0 +1,242 @@
+package com.mycompany;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.mycompany.handler.service.BedrockRouter;
+import com.mycompany.handler.service.BedrockRouter.Target;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import org.junit.Test;
+
+/**
+ * Runs the router against stubbed targets instead of Bedrock. Timings are kept
+ * far apart (50 ms hedge floor vs. replies of 300 ms or more) so a slow runner
+ * doesn't change which call wins.
+ */
+public class BedrockRouterTest
+{
+    private static final ScheduledExecutorService timer = Executors.newScheduledThreadPool(4, r -> {
+        Thread thread = new Thread(r, "stub-bedrock");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Test
+    public void hedgingImprovesP99()
+    {
+        Random random = new Random(42);
+        // Mostly ~5 ms, but 3% of calls stall for 600 ms
+        LongSupplier tailLatency = () -> random.nextDouble() < 0.03 ? 600 : 5 + random.nextInt(3);
+
+        BedrockRouter single = new BedrockRouter(List.of(
+                new StubTarget("us-east-1/model", false, tailLatency).target));
+        StubTarget east = new StubTarget("us-east-1/model", false, tailLatency);
+        StubTarget west = new StubTarget("us-west-2/model", false, tailLatency);
+        BedrockRouter hedged = new BedrockRouter(List.of(east.target, west.target));
+
+        long singleP99 = p99(single, 200);
+        long hedgedP99 = p99(hedged, 200);
+
+        assertTrue("single=" + singleP99 + "ms hedged=" + hedgedP99 + "ms", hedgedP99 * 2 < singleP99);
+        assertTrue("stalled calls should lose to a hedge", east.cancelledCalls() + west.cancelledCalls() > 0);
+    }
+
+    @Test
+    public void cancelsTheLosingRequest()
+    {
+        long[] delay = {0, 30};
+        StubTarget east = new StubTarget("us-east-1/model", false, () -> delay[0]);
+        StubTarget west = new StubTarget("us-west-2/model", false, () -> delay[1]);
+        // East gets enough fast samples to hedge at the 50 ms floor, west stays second
+        prime(east.target, 12);
+        prime(west.target, 1);
+        BedrockRouter router = new BedrockRouter(List.of(east.target, west.target));
+
+        delay[0] = 300;
+        delay[1] = 5_000;
+        router.invokeModel("slow everywhere");
+
+        assertEquals(13, east.calls.size());
+        assertEquals(2, west.calls.size());
+        assertTrue(west.calls.get(1).isCancelled());
+    }
+
+    @Test
+    public void cancelledBackupDoesNotBecomeTopRanked()
+    {
+        long[] delay = {0, 600};
+        StubTarget primary = new StubTarget("us-east-1/model", false, () -> delay[0]);
+        StubTarget backup = new StubTarget("us-west-2/model", false, () -> delay[1]);
+        prime(primary.target, 12);
+        prime(backup.target, 1);
+        double backupEstimate = backup.target.getLatencyEwma();
+        BedrockRouter router = new BedrockRouter(List.of(primary.target, backup.target));
+
+        // Hedge fires at 50 ms, the primary answers at 300 ms and the backup loses after ~250 ms
+        delay[0] = 300;
+        delay[1] = 5_000;
+        assertEquals("us-east-1/model", router.invokeModel("hello"));
+
+        assertEquals(1, backup.cancelledCalls());
+        assertEquals(backupEstimate, backup.target.getLatencyEwma(), 0.001);
+        assertEquals(primary.target, router.rank("hello").get(0));
+    }
+
+    @Test
+    public void doesNotHedgeOntoUnhealthyTarget()
+    {
+        long[] delay = {0};
+        StubTarget primary = new StubTarget("us-east-1/model", false, () -> delay[0]);
+        AtomicInteger backupCalls = new AtomicInteger();
+        Target backup = new Target("us-west-2/model", false, prompt -> {
+            backupCalls.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("throttled"));
+        });
+        prime(primary.target, 12);
+        prime(backup, 5);
+        assertTrue(backup.getErrorEwma() >= 0.5);
+        BedrockRouter router = new BedrockRouter(List.of(primary.target, backup));
+
+        // Slow enough that a hedge would have fired at 50 ms if the backup were healthy
+        delay[0] = 300;
+        assertEquals("us-east-1/model", router.invokeModel("hello"));
+        assertEquals(5, backupCalls.get());
+    }
+
+    @Test
+    public void penalisesIntermittentlyFailingTarget()
+    {
+        // Fails every third call: the error EWMA stays under the 0.5 health cutoff
+        AtomicInteger flakyCalls = new AtomicInteger();
+        Target flaky = new Target("us-east-1/model", false, prompt -> flakyCalls.incrementAndGet() % 3 == 0
+                ? CompletableFuture.failedFuture(new IllegalStateException("throttled"))
+                : CompletableFuture.completedFuture("us-east-1/model"));
+        StubTarget steady = new StubTarget("us-west-2/model", false, () -> 20);
+        prime(flaky, 9);
+        prime(steady.target, 3);
+        assertTrue(flaky.getErrorEwma() < 0.5);
+
+        BedrockRouter router = new BedrockRouter(List.of(flaky, steady.target));
+
+        assertEquals(steady.target, router.rank("hello").get(0));
+    }
+
+    @Test
+    public void prefersLightweightTargetForShortPrompts()
+    {
+        StubTarget full = new StubTarget("us-east-1/sonnet", false, () -> 5);
+        StubTarget fast = new StubTarget("us-east-1/haiku", true, () -> 5);
+        BedrockRouter router = new BedrockRouter(List.of(full.target, fast.target));
+
+        assertEquals("us-east-1/haiku", router.invokeModel("Summarise this note"));
+
+        char[] longPrompt = new char[2000];
+        Arrays.fill(longPrompt, 'x');
+        assertEquals("us-east-1/sonnet", router.invokeModel(new String(longPrompt)));
+        // Long prompts still keep the lightweight model as a fallback
+        assertEquals(List.of(full.target, fast.target), router.rank(new String(longPrompt)));
+    }
+
+    @Test
+    public void failsOverWhenPrimaryErrors()
+    {
+        Target broken = new Target("us-east-1/model", false, prompt ->
+                CompletableFuture.failedFuture(new IllegalStateException("throttled")));
+        StubTarget healthy = new StubTarget("us-west-2/model", false, () -> 5);
+        BedrockRouter router = new BedrockRouter(List.of(broken, healthy.target));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("us-west-2/model", router.invokeModel("hello"));
+        }
+        // A target that has only failed must not look like the fastest one
+        assertEquals(healthy.target, router.rank("hello").get(0));
+    }
+
+    @Test
+    public void timesOutAndCancelsHungCall()
+    {
+        StubTarget hung = new StubTarget("us-east-1/model", false, () -> 60_000);
+        BedrockRouter router = new BedrockRouter(List.of(hung.target), Duration.ofMillis(100));
+
+        try {
+            router.invokeModel("hello");
+            fail("Expected the request to time out");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(1, hung.cancelledCalls());
+    }
+
+    @Test
+    public void rejectsIncompleteTargetConfig()
+    {
+        for (String config : Arrays.asList(null, "", "us-east-1=", "=anthropic.claude", "us-east-1")) {
+            try {
+                BedrockRouter.fromConfig(config, null);
+                fail("Expected config to be rejected: " + config);
+            } catch (IllegalArgumentException expected) {
+                // ok
+            }
+        }
+    }
+
+    private static void prime(Target target, int calls)
+    {
+        for (int i = 0; i < calls; i++) {
+            target.call("warm up").exceptionally(error -> null).join();
+        }
+    }
+
+    private static long p99(BedrockRouter router, int requests)
+    {
+        // Let the router collect latency samples before measuring
+        for (int i = 0; i < 30; i++) {
+            router.invokeModel("warm up");
+        }
+
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            router.invokeModel("prompt " + i);
+            latencies[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+        Arrays.sort(latencies);
+        return latencies[(int) Math.ceil(0.99 * requests) - 1];
+    }
+
+    /**
+     * Completes with its own name after the supplied delay and remembers every call.
+     */
+    private static final class StubTarget
+    {
+        private final List<CompletableFuture<String>> calls = new CopyOnWriteArrayList<>();
+        private final Target target;
+
+        private StubTarget(String name, boolean lightweight, LongSupplier latencyMillis)
+        {
+            this.target = new Target(name, lightweight, prompt -> {
+                CompletableFuture<String> future = new CompletableFuture<>();
+                calls.add(future);
+                timer.schedule(() -> future.complete(name), latencyMillis.getAsLong(), TimeUnit.MILLISECONDS);
+                return future;
+            });
+        }
+
+        private long cancelledCalls()
+        {
+            return calls.stream().filter(CompletableFuture::isCancelled).count();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.mycompany;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.Gson;
+import com.mycompany.handler.service.CognitoJwtVerifier;
+import com.mycompany.handler.service.CognitoJwtVerifier.InvalidTokenException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Signs tokens with locally generated RSA keys, so no Cognito pool is needed.
+ */
+public class CognitoJwtVerifierTest
+{
+    private static final String ISSUER = "https://cognito-idp.us-east-1.amazonaws.com/us-east-1_test";
+    private static final String CLIENT_ID = "test-client";
+    private static final Gson gson = new Gson();
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    private final AtomicInteger jwksFetches = new AtomicInteger();
+    private final List<Map<String, Object>> publishedKeys = new ArrayList<>();
+    private volatile boolean jwksDown;
+
+    private KeyPair signingKey;
+    private CognitoJwtVerifier verifier;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        signingKey = generateKeyPair();
+        publishKey("key-1", signingKey);
+        verifier = newVerifier(Duration.ZERO);
+    }
+
+    private CognitoJwtVerifier newVerifier(Duration refreshInterval)
+    {
+        return new CognitoJwtVerifier(ISSUER, CLIENT_ID, () -> {
+            jwksFetches.incrementAndGet();
+            if (jwksDown) {
+                throw new IllegalStateException("JWKS endpoint unavailable");
+            }
+            return gson.toJson(Map.of("keys", publishedKeys));
+        }, refreshInterval, clock);
+    }
+
+    @Test
+    public void acceptsValidIdToken() throws Exception
+    {
+        Map<String, Object> claims = verifier.verify(sign("key-1", signingKey, idClaims()));
+
+        assertEquals("user-123", claims.get("sub"));
+    }
+
+    @Test
+    public void acceptsValidAccessToken() throws Exception
+    {
+        Map<String, Object> claims = baseClaims();
+        claims.put("token_use", "access");
+        claims.put("client_id", CLIENT_ID);
+
+        assertEquals("user-123", verifier.verify(sign("key-1", signingKey, claims)).get("sub"));
+    }
+
+    @Test
+    public void rejectsTamperedPayload() throws Exception
+    {
+        String[] parts = sign("key-1", signingKey, idClaims()).split("\\.");
+        Map<String, Object> forged = idClaims();
+        forged.put("sub", "admin");
+        String token = parts[0] + "." + encode(gson.toJson(forged)) + "." + parts[2];
+
+        assertRejected(token);
+    }
+
+    @Test
+    public void rejectsWrongIssuerAndAudience() throws Exception
+    {
+        Map<String, Object> wrongIssuer = idClaims();
+        wrongIssuer.put("iss", "https://example.com");
+        assertRejected(sign("key-1", signingKey, wrongIssuer));
+
+        Map<String, Object> wrongAudience = idClaims();
+        wrongAudience.put("aud", "other-client");
+        assertRejected(sign("key-1", signingKey, wrongAudience));
+    }
+
+    @Test
+    public void rejectsNonStringOrMissingKid() throws Exception
+    {
+        Map<String, Object> numericKid = new HashMap<>();
+        numericKid.put("alg", "RS256");
+        numericKid.put("kid", 42);
+        assertRejected(sign(numericKid, signingKey, idClaims()));
+
+        assertRejected(sign(Map.of("alg", "RS256"), signingKey, idClaims()));
+    }
+
+    @Test
+    public void startsWhenJwksIsDownAndLoadsKeysOnFirstToken() throws Exception
+    {
+        jwksDown = true;
+        CognitoJwtVerifier coldStart = newVerifier(Duration.ZERO);
+        assertEquals(2, jwksFetches.get());
+
+        jwksDown = false;
+        assertEquals("user-123", coldStart.verify(sign("key-1", signingKey, idClaims())).get("sub"));
+        assertEquals(3, jwksFetches.get());
+    }
+
+    @Test
+    public void rejectsCachedTokenOnceExpired() throws Exception
+    {
+        String token = sign("key-1", signingKey, idClaims());
+        verifier.verify(token);
+
+        clock.advance(Duration.ofHours(2));
+
+        assertRejected(token);
+    }
+
+    @Test
+    public void refreshesKeysWhenKidIsUnknown() throws Exception
+    {
+        KeyPair rotated = generateKeyPair();
+        publishKey("key-2", rotated);
+        clock.advance(Duration.ofMinutes(1));
+
+        verifier.verify(sign("key-2", rotated, idClaims()));
+
+        assertEquals(2, jwksFetches.get());
+    }
+
+    @Test
+    public void rateLimitsUnknownKidRefreshWhenJwksIsDown() throws Exception
+    {
+        jwksDown = true;
+        clock.advance(Duration.ofMinutes(1));
+        KeyPair unknown = generateKeyPair();
+
+        assertRejected(sign("random-kid-1", unknown, idClaims()));
+        assertEquals(2, jwksFetches.get());
+
+        clock.advance(Duration.ofSeconds(10));
+        assertRejected(sign("random-kid-2", unknown, idClaims()));
+        assertEquals(2, jwksFetches.get());
+    }
+
+    @Test
+    public void refreshesStaleKeysAsynchronously() throws Exception
+    {
+        CognitoJwtVerifier refreshing = newVerifier(Duration.ofMinutes(15));
+        String token = sign("key-1", signingKey, idClaims());
+        refreshing.verify(token);
+        assertEquals(2, jwksFetches.get());
+
+        clock.advance(Duration.ofMinutes(16));
+        Map<String, Object> claims = idClaims();
+        claims.put("exp", clock.instant().plus(Duration.ofHours(1)).getEpochSecond());
+        refreshing.verify(sign("key-1", signingKey, claims));
+
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (jwksFetches.get() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, jwksFetches.get());
+    }
+
+    @Test
+    public void measuresVerificationOverheadPerRequest() throws Exception
+    {
+        int requests = 2000;
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            Map<String, Object> claims = idClaims();
+            claims.put("jti", "token-" + i);
+            tokens.add(sign("key-1", signingKey, claims));
+        }
+
+        long start = System.nanoTime();
+        for (String token : tokens) {
+            verifier.verify(token);
+        }
+        long fullNanos = (System.nanoTime() - start) / requests;
+
+        start = System.nanoTime();
+        for (String token : tokens) {
+            verifier.verify(token);
+        }
+        long cachedNanos = (System.nanoTime() - start) / requests;
+
+        assertEquals(1, jwksFetches.get());
+        assertTrue("full=" + fullNanos / 1_000 + "us cached=" + cachedNanos / 1_000 + "us",
+                cachedNanos < fullNanos);
+    }
+
+    private void assertRejected(String token)
+    {
+        try {
+            verifier.verify(token);
+            fail("Expected token to be rejected");
+        } catch (InvalidTokenException expected) {
+            // ok
+        }
+    }
+
+    private Map<String, Object> baseClaims()
+    {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", "user-123");
+        claims.put("iss", ISSUER);
+        claims.put("exp", clock.instant().plus(Duration.ofHours(1)).getEpochSecond());
+        return claims;
+    }
+
+    private Map<String, Object> idClaims()
+    {
+        Map<String, Object> claims = baseClaims();
+        claims.put("token_use", "id");
+        claims.put("aud", CLIENT_ID);
+        return claims;
+    }
+
+    private void publishKey(String kid, KeyPair keyPair)
+    {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        Map<String, Object> jwk = new HashMap<>();
+        jwk.put("kid", kid);
+        jwk.put("kty", "RSA");
+        jwk.put("alg", "RS256");
+        jwk.put("n", Base64.getUrlEncoder().withoutPadding().encodeToString(publicKey.getModulus().toByteArray()));
+        jwk.put("e", Base64.getUrlEncoder().withoutPadding().encodeToString(publicKey.getPublicExponent().toByteArray()));
+        publishedKeys.add(jwk);
+    }
+
+    private static String sign(String kid, KeyPair keyPair, Map<String, Object> claims) throws Exception
+    {
+        return sign(Map.of("alg", "RS256", "kid", kid), keyPair, claims);
+    }
+
+    private static String sign(Map<String, Object> header, KeyPair keyPair, Map<String, Object> claims) throws Exception
+    {
+        String signingInput = encode(gson.toJson(header))
+                + "." + encode(gson.toJson(claims));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature.sign());
+    }
+
+    private static String encode(String json)
+    {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static KeyPair generateKeyPair() throws Exception
+    {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static final class MutableClock extends Clock
+    {
+        private Instant now;
+
+        private MutableClock(Instant now)
+        {
+            this.now = now;
+        }
+
+        void advance(Duration duration)
+        {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant()
+        {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone()
+        {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone)
+        {
+            return this;
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.myorg;
 
+import software.amazon.awscdk.CfnOutput;
 import software.amazon.awscdk.Stack;
 import software.amazon.awscdk.StackProps;
 import software.constructs.Construct;
 
 import software.amazon.awscdk.services.apigateway.*;
 import software.amazon.awscdk.services.ec2.*;
+import software.amazon.awscdk.services.iam.PolicyStatement;
 import software.amazon.awscdk.services.lambda.*;
 import software.amazon.awscdk.services.secretsmanager.ISecret;
 import software.amazon.awscdk.services.rds.DatabaseInstance;
@@ -13,6 +15,7 @@ import software.amazon.awscdk.services.cognito.UserPool;
 import software.amazon.awscdk.services.lambda.Runtime;
 
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -27,7 +30,9 @@ public class ApiStack extends Stack {
         final ISecret dbSecret,
         final String dbName,
         final String userPoolId,
-        final String userPoolClientId
+        final String userPoolClientId,
+        final String cognitoIssuer,
+        final String cognitoJwksUrl
     ) {
         super(scope, id, props);
 
@@ -91,5 +96,69 @@ public class ApiStack extends Stack {
             .authorizer(authorizer)
             .authorizationType(AuthorizationType.COGNITO)
             .build());
+
+        // Optional direct path: Function URL with no API Gateway / authorizer hop.
+        // The handler verifies Cognito tokens itself. Enable with
+        // `cdk deploy -c functionUrl=true -c bedrockModelId=<model>` after `mvn package` in
+        // packages/backend/lambda-api-handler. Optional: -c bedrockTargets / -c bedrockFastTargets
+        // ("region=modelId" lists) to route across models and regions.
+        if ("true".equals(String.valueOf(this.getNode().tryGetContext("functionUrl")))) {
+            Object bedrockModelId = this.getNode().tryGetContext("bedrockModelId");
+            if (bedrockModelId == null) {
+                throw new IllegalArgumentException("functionUrl=true requires -c bedrockModelId=<model id>");
+            }
+
+            Map<String, String> urlEnvironment = new HashMap<>(Map.of(
+                "DB_HOST", dbInstance.getDbInstanceEndpointAddress(),
+                "DB_PORT", String.valueOf(dbInstance.getDbInstanceEndpointPort()),
+                "DB_NAME", dbName,
+                "DB_SECRET_ARN", dbSecret.getSecretArn(),
+                "BEDROCK_MODEL_ID", bedrockModelId.toString(),
+                "COGNITO_ISSUER", cognitoIssuer,
+                "COGNITO_JWKS_URL", cognitoJwksUrl,
+                "COGNITO_CLIENT_ID", userPoolClientId
+            ));
+            Object bedrockTargets = this.getNode().tryGetContext("bedrockTargets");
+            if (bedrockTargets != null) {
+                urlEnvironment.put("BEDROCK_TARGETS", bedrockTargets.toString());
+            }
+            Object bedrockFastTargets = this.getNode().tryGetContext("bedrockFastTargets");
+            if (bedrockFastTargets != null) {
+                urlEnvironment.put("BEDROCK_FAST_TARGETS", bedrockFastTargets.toString());
+            }
+
+            Function urlHandler = Function.Builder.create(this, "ApiUrlHandler")
+                .runtime(Runtime.JAVA_17)
+                .handler("main.java.com.mycompany.ApiHandler::handleFunctionUrlRequest")
+                .code(Code.fromAsset("../backend/lambda-api-handler/target/lambda-api-handler-1.0-SNAPSHOT.jar"))
+                .vpc(vpc)
+                .vpcSubnets(SubnetSelection.builder().subnetType(SubnetType.PRIVATE_WITH_EGRESS).build())
+                .securityGroups(List.of(lambdaSg))
+                .timeout(software.amazon.awscdk.Duration.seconds(30))
+                .memorySize(512)
+                .environment(urlEnvironment)
+                .build();
+
+            dbSecret.grantRead(urlHandler);
+
+            // Targets may live in other regions, so allow any foundation model ARN
+            urlHandler.addToRolePolicy(PolicyStatement.Builder.create()
+                .actions(List.of("bedrock:InvokeModel"))
+                .resources(List.of("arn:aws:bedrock:*::foundation-model/*"))
+                .build());
+
+            FunctionUrl functionUrl = urlHandler.addFunctionUrl(FunctionUrlOptions.builder()
+                .authType(FunctionUrlAuthType.NONE)
+                .cors(FunctionUrlCorsOptions.builder()
+                    .allowedOrigins(List.of("*"))
+                    .allowedHeaders(List.of("Content-Type", "Authorization"))
+                    .build())
+                .build());
+
+            CfnOutput.Builder.create(this, "ApiFunctionUrlOutput")
+                .value(functionUrl.getUrl())
+                .description("Direct Function URL (tokens verified in the Lambda)")
+                .build();
+        }
     }
 }
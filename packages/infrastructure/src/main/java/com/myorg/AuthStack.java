@@ -49,6 +49,8 @@ public class AuthStack extends Stack {
 
     private final UserPool userPool;
     private final UserPoolClient userPoolClient;
+    private final String issuerUrl;
+    private final String jwksUrl;
     private final String USER_POOL_ID = "WebPortalUserPool";
     private final String USER_POOL_NAME = "web-portal-users";
     private final String USER_POOL_CLIENT_ID = "WebPortalUserPoolClient";
@@ -115,6 +117,10 @@ public class AuthStack extends Stack {
                                 .build())
                         .build());
 
+        // Issuer + JWKS location so a Lambda can verify tokens itself (Function URL path, no API Gateway authorizer)
+        this.issuerUrl = "https://" + userPool.getUserPoolProviderUrl();
+        this.jwksUrl = issuerUrl + "/.well-known/jwks.json";
+
         // Outputs
         CfnOutput.Builder.create(this, "UserPoolIdOutput")
                 .value(userPool.getUserPoolId())
@@ -132,6 +138,18 @@ public class AuthStack extends Stack {
                 .value(domain.getDomainName())
                 .description("User Pool Domain")
                 .build();
+
+        CfnOutput.Builder.create(this, "UserPoolIssuerOutput")
+                .value(issuerUrl)
+                .description("User Pool token issuer")
+                .exportName(getStackName() + "-UserPoolIssuer")
+                .build();
+
+        CfnOutput.Builder.create(this, "UserPoolJwksUrlOutput")
+                .value(jwksUrl)
+                .description("User Pool JWKS URL")
+                .exportName(getStackName() + "-UserPoolJwksUrl")
+                .build();
     }
 
     public UserPool getUserPool() {
@@ -139,13 +157,21 @@ public class AuthStack extends Stack {
     }
 
     public String getUserPoolId() {
-        return USER_POOL_ID;
+        return userPool.getUserPoolId();
     }
 
     public String getUserPoolClientId() {
-        return USER_POOL_CLIENT_ID;
+        return userPoolClient.getUserPoolClientId();
     }
     public UserPoolClient getUserPoolClient() {
         return userPoolClient;
     }
+
+    public String getIssuerUrl() {
+        return issuerUrl;
+    }
+
+    public String getJwksUrl() {
+        return jwksUrl;
+    }
 }
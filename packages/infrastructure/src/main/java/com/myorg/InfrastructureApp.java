@@ -30,7 +30,9 @@ public class InfrastructureApp {
             data.getDbSecret(),
             data.getDbName(),
             auth.getUserPoolId(),
-            auth.getUserPoolClientId());
+            auth.getUserPoolClientId(),
+            auth.getIssuerUrl(),
+            auth.getJwksUrl());
 
         api.addDependency(data);
         api.addDependency(auth);